@@ -23,6 +23,8 @@ import java.net.URI;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -179,7 +181,8 @@ public class PostgreSQL implements SQLDialect {
 				builder.append("create sequence ").append(seqName).append(";\n");
 			}
 		}
-		builder.append("create table " + EAIRepositoryUtils.uncamelify(getName(type.getProperties())) + " (" + (compact ? "" : "\n"));
+		Boolean unlogged = ValueUtils.getValue(PostgresUnloggedProperty.getInstance(), type.getProperties());
+		builder.append("create " + (unlogged != null && unlogged ? "unlogged " : "") + "table " + EAIRepositoryUtils.uncamelify(getName(type.getProperties())) + " (" + (compact ? "" : "\n"));
 		boolean first = true;
 		for (Element<?> child : JDBCUtils.getFieldsInTable(type)) {
 			if (first) {
@@ -189,38 +192,7 @@ public class PostgreSQL implements SQLDialect {
 				builder.append("," + (compact ? " " : "\n"));
 			}
 			
-			// if we have a complex type, generate an id field that references it
-			if (child.getType() instanceof ComplexType) {
-				builder.append((compact ? "" : "\t") + EAIRepositoryUtils.uncamelify(child.getName()) + "_id uuid");
-			}
-			// differentiate between dates
-			else if (Date.class.isAssignableFrom(((SimpleType<?>) child.getType()).getInstanceClass())) {
-				Value<String> property = child.getProperty(FormatProperty.getInstance());
-				String format = property == null ? "dateTime" : property.getValue();
-				Granularity granularity = format == null ? Granularity.TIMESTAMP : DateUtils.getGranularity(format);
-				if (format.equals("dateTime")) {
-					format = "timestamp";
-				}
-				else if (granularity == Granularity.TIME) {
-					format = "time";
-				}
-				else if (granularity == Granularity.DATE) {
-					format = "date";
-				}
-				else if (!format.equals("date") && !format.equals("time")) {
-					format = "timestamp";
-				}
-				builder.append((compact ? "" : "\t") + EAIRepositoryUtils.uncamelify(child.getName())).append(" ").append(format);
-			}
-			else {
-				builder.append((compact ? "" : "\t") + EAIRepositoryUtils.uncamelify(child.getName())).append(" ")
-					.append(getPredefinedSQLType(((SimpleType<?>) child.getType()).getInstanceClass()));
-			}
-			
-			boolean isList = child.getType().isList(child.getProperties());
-			if (isList) {
-				builder.append("[]");
-			}
+			builder.append((compact ? "" : "\t") + getColumnName(child)).append(" ").append(getColumnType(child));
 			
 			Value<Boolean> primaryKeyProperty = child.getProperty(PrimaryKeyProperty.getInstance());
 			Value<Boolean> generatedProperty = child.getProperty(GeneratedProperty.getInstance());
@@ -250,34 +222,9 @@ public class PostgreSQL implements SQLDialect {
 				}
 			}
 			
-			Value<String> foreignKey = child.getProperty(ForeignKeyProperty.getInstance());
-			if (foreignKey != null) {
-				String[] split = foreignKey.getValue().split(":");
-				if (split.length == 2) {
-					DefinedType resolve = DefinedTypeResolverFactory.getInstance().getResolver().resolve(split[0]);
-					String referencedName = ValueUtils.getValue(CollectionNameProperty.getInstance(), resolve.getProperties());
-					if (referencedName == null) {
-						referencedName = resolve.getName();
-					}
-					builder.append(" references " + EAIRepositoryUtils.uncamelify(referencedName) + "(" + split[1] + ")");
-				}
-			}
-			// if we have a supertype, it has a field by the exact same name which is also a primary key, we set a foreign key
-			else if (primaryKeyProperty != null && primaryKeyProperty.getValue() != null && primaryKeyProperty.getValue()) {
-				Type superType = type.getSuperType();
-				if (superType instanceof ComplexType) {
-					Element<?> element = ((ComplexType) superType).get(child.getName());
-					if (element != null) {
-						Value<Boolean> superPrimaryKey = element.getProperty(PrimaryKeyProperty.getInstance());
-						String superName = ValueUtils.getValue(CollectionNameProperty.getInstance(), superType.getProperties());
-						if (superName == null) {
-							superName = superType.getName();
-						}
-						if (superPrimaryKey != null && superPrimaryKey.getValue() != null && superPrimaryKey.getValue()) {
-							builder.append(" references " + EAIRepositoryUtils.uncamelify(superName) + "(" + child.getName() + ")");
-						}
-					}
-				}
+			String reference = getReference(type, child);
+			if (reference != null) {
+				builder.append(" references " + reference);
 			}
 			
 			Value<Boolean> property = child.getProperty(UniqueProperty.getInstance());
@@ -290,7 +237,16 @@ public class PostgreSQL implements SQLDialect {
 				builder.append(" default nextval('" + seqName + "')");
 			}
 		}
-		builder.append((compact ? "" : "\n") + ");");
+		builder.append((compact ? "" : "\n") + ")");
+		String storageParameters = getStorageParameters(type);
+		if (storageParameters != null) {
+			builder.append(" with (" + storageParameters + ")");
+		}
+		String tablespace = ValueUtils.getValue(PostgresTablespaceProperty.getInstance(), type.getProperties());
+		if (tablespace != null && !tablespace.trim().isEmpty()) {
+			builder.append(" tablespace " + tablespace.trim());
+		}
+		builder.append(";");
 		// create indexes
 		builder.append("\n");
 		for (Element<?> child : JDBCUtils.getFieldsInTable(type)) {
@@ -305,6 +261,152 @@ public class PostgreSQL implements SQLDialect {
 		return builder.toString();
 	}
 
+	// the name of the column for the given field, complex types are stored as a reference to their id
+	public static String getColumnName(Element<?> child) {
+		return EAIRepositoryUtils.uncamelify(child.getName()) + (child.getType() instanceof ComplexType ? "_id" : "");
+	}
+	
+	// the sql type of the column for the given field, null if it can not be mapped
+	public static String getColumnType(Element<?> child) {
+		String columnType;
+		// if we have a complex type, generate an id field that references it
+		if (child.getType() instanceof ComplexType) {
+			columnType = "uuid";
+		}
+		// differentiate between dates
+		else if (Date.class.isAssignableFrom(((SimpleType<?>) child.getType()).getInstanceClass())) {
+			Value<String> property = child.getProperty(FormatProperty.getInstance());
+			String format = property == null ? "dateTime" : property.getValue();
+			Granularity granularity = format == null ? Granularity.TIMESTAMP : DateUtils.getGranularity(format);
+			if (format.equals("dateTime")) {
+				format = "timestamp";
+			}
+			else if (granularity == Granularity.TIME) {
+				format = "time";
+			}
+			else if (granularity == Granularity.DATE) {
+				format = "date";
+			}
+			else if (!format.equals("date") && !format.equals("time")) {
+				format = "timestamp";
+			}
+			columnType = format;
+		}
+		else {
+			columnType = getPredefinedSQLType(((SimpleType<?>) child.getType()).getInstanceClass());
+			if (columnType == null) {
+				return null;
+			}
+		}
+		boolean isList = child.getType().isList(child.getProperties());
+		if (isList) {
+			columnType += "[]";
+		}
+		return columnType;
+	}
+	
+	// the "table(column)" referenced by the given field, null if it does not reference anything
+	public static String getReference(ComplexType type, Element<?> child) {
+		Value<String> foreignKey = child.getProperty(ForeignKeyProperty.getInstance());
+		if (foreignKey != null) {
+			String[] split = foreignKey.getValue().split(":");
+			if (split.length == 2) {
+				DefinedType resolve = DefinedTypeResolverFactory.getInstance().getResolver().resolve(split[0]);
+				String referencedName = ValueUtils.getValue(CollectionNameProperty.getInstance(), resolve.getProperties());
+				if (referencedName == null) {
+					referencedName = resolve.getName();
+				}
+				checkReferencedLogging(type, resolve, referencedName);
+				return EAIRepositoryUtils.uncamelify(referencedName) + "(" + split[1] + ")";
+			}
+		}
+		// if we have a supertype, it has a field by the exact same name which is also a primary key, we set a foreign key
+		else {
+			Value<Boolean> primaryKeyProperty = child.getProperty(PrimaryKeyProperty.getInstance());
+			if (primaryKeyProperty != null && primaryKeyProperty.getValue() != null && primaryKeyProperty.getValue()) {
+				Type superType = type.getSuperType();
+				if (superType instanceof ComplexType) {
+					Element<?> element = ((ComplexType) superType).get(child.getName());
+					if (element != null) {
+						Value<Boolean> superPrimaryKey = element.getProperty(PrimaryKeyProperty.getInstance());
+						String superName = ValueUtils.getValue(CollectionNameProperty.getInstance(), superType.getProperties());
+						if (superName == null) {
+							superName = superType.getName();
+						}
+						if (superPrimaryKey != null && superPrimaryKey.getValue() != null && superPrimaryKey.getValue()) {
+							checkReferencedLogging(type, superType, superName);
+							return EAIRepositoryUtils.uncamelify(superName) + "(" + child.getName() + ")";
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	// postgresql refuses foreign keys from a permanent table to an unlogged one
+	private static void checkReferencedLogging(ComplexType type, Type referenced, String referencedName) {
+		Boolean unlogged = ValueUtils.getValue(PostgresUnloggedProperty.getInstance(), type.getProperties());
+		Boolean referencedUnlogged = ValueUtils.getValue(PostgresUnloggedProperty.getInstance(), referenced.getProperties());
+		if ((unlogged == null || !unlogged) && referencedUnlogged != null && referencedUnlogged) {
+			throw new IllegalArgumentException("The table '" + getName(type.getProperties()) + "' is permanent and can not reference the unlogged table '" + referencedName + "'");
+		}
+	}
+	
+	// the storage parameters for the "with" clause of the table, null if there are none
+	public static String getStorageParameters(ComplexType type) {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, String> parameter : getStorageParameterMap(type).entrySet()) {
+			builder.append(builder.length() == 0 ? "" : ", ").append(parameter.getKey());
+			if (parameter.getValue() != null) {
+				builder.append("=").append(parameter.getValue());
+			}
+		}
+		return builder.length() == 0 ? null : builder.toString();
+	}
+	
+	// the storage parameters of the table by name, a parameter without a value has null as value
+	public static Map<String, String> getStorageParameterMap(ComplexType type) {
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		Integer fillFactor = ValueUtils.getValue(PostgresFillFactorProperty.getInstance(), type.getProperties());
+		if (fillFactor != null) {
+			if (fillFactor < 10 || fillFactor > 100) {
+				throw new IllegalArgumentException("The fillfactor of table '" + getName(type.getProperties()) + "' must be between 10 and 100: " + fillFactor);
+			}
+			parameters.put("fillfactor", fillFactor.toString());
+		}
+		Double vacuumScaleFactor = ValueUtils.getValue(PostgresAutovacuumVacuumScaleFactorProperty.getInstance(), type.getProperties());
+		if (vacuumScaleFactor != null) {
+			if (vacuumScaleFactor < 0 || vacuumScaleFactor > 100) {
+				throw new IllegalArgumentException("The autovacuum vacuum scale factor of table '" + getName(type.getProperties()) + "' must be between 0 and 100: " + vacuumScaleFactor);
+			}
+			parameters.put("autovacuum_vacuum_scale_factor", vacuumScaleFactor.toString());
+		}
+		Double analyzeScaleFactor = ValueUtils.getValue(PostgresAutovacuumAnalyzeScaleFactorProperty.getInstance(), type.getProperties());
+		if (analyzeScaleFactor != null) {
+			if (analyzeScaleFactor < 0 || analyzeScaleFactor > 100) {
+				throw new IllegalArgumentException("The autovacuum analyze scale factor of table '" + getName(type.getProperties()) + "' must be between 0 and 100: " + analyzeScaleFactor);
+			}
+			parameters.put("autovacuum_analyze_scale_factor", analyzeScaleFactor.toString());
+		}
+		// free form parameters for everything we don't have a dedicated property for
+		String additional = ValueUtils.getValue(PostgresStorageParametersProperty.getInstance(), type.getProperties());
+		if (additional != null && !additional.trim().isEmpty()) {
+			for (String parameter : additional.split(",")) {
+				if (parameter.trim().isEmpty()) {
+					continue;
+				}
+				int index = parameter.indexOf('=');
+				String key = (index < 0 ? parameter : parameter.substring(0, index)).trim().toLowerCase();
+				// postgresql refuses the ddl if a parameter is specified more than once
+				if (parameters.containsKey(key)) {
+					throw new IllegalArgumentException("The storage parameter '" + key + "' of table '" + getName(type.getProperties()) + "' is specified more than once");
+				}
+				parameters.put(key, index < 0 ? null : parameter.substring(index + 1).trim());
+			}
+		}
+		return parameters;
+	}
 	
 	public static String getPredefinedSQLType(Class<?> instanceClass) {
 		if (String.class.isAssignableFrom(instanceClass) || char[].class.isAssignableFrom(instanceClass) || URI.class.isAssignableFrom(instanceClass) || instanceClass.isEnum()) {
@@ -0,0 +1,42 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.eai.module.jdbc.dialects;
+
+import be.nabu.libs.types.properties.SimpleProperty;
+
+/**
+ * The fillfactor (10-100) of the table. Leaving room on each page allows for HOT updates which is interesting for tables that are updated frequently.
+ */
+public class PostgresFillFactorProperty extends SimpleProperty<Integer> {
+
+	private static PostgresFillFactorProperty instance = new PostgresFillFactorProperty();
+	
+	public static PostgresFillFactorProperty getInstance() {
+		return instance;
+	}
+	
+	public PostgresFillFactorProperty() {
+		super(Integer.class);
+	}
+	
+	@Override
+	public String getName() {
+		return "postgresFillFactor";
+	}
+
+}
@@ -0,0 +1,545 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.eai.module.jdbc.dialects;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import be.nabu.eai.repository.EAIRepositoryUtils;
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.services.jdbc.JDBCUtils;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.properties.DefaultValueProperty;
+import be.nabu.libs.types.properties.GeneratedProperty;
+import be.nabu.libs.types.properties.IndexedProperty;
+import be.nabu.libs.types.properties.MinOccursProperty;
+import be.nabu.libs.types.properties.PrimaryKeyProperty;
+import be.nabu.libs.types.properties.UniqueProperty;
+
+/**
+ * Compares a complex type with the live table in the database and generates the ddl to bring the table up to date.
+ * The generated statements are chosen to avoid long-held locks on large tables:
+ * 
+ * - columns with a constant default are added in one go, since postgresql 11 this does not rewrite the table
+ * - columns with a volatile default (e.g. a sequence) are added without a default and backfilled in batches that each commit,
+ *   this walks the primary key or, from postgresql 14 onwards, ranges of pages. Tables that have neither have to be backfilled manually
+ * - not null is enforced with a "not valid" check constraint that is validated separately, since postgresql 12 "set not null" reuses it instead of scanning the table
+ *   the constraint is only added when there are no null values left, otherwise it would block updates of existing rows
+ * - storage parameters are updated in place, changing the tablespace or the logging is only reported
+ * - foreign keys are added as "not valid" and validated separately, which does not block writes
+ * - indexes are created concurrently, invalid leftovers of a failed concurrent build by this generator are dropped first
+ * 
+ * Because of the concurrent indexes and the commits in the backfill, the script must be run outside of a transaction block.
+ * Constraints that already exist are not added again, so a script that failed halfway can simply be generated and run again.
+ * Changes that can not be done safely (changing column types, dropping columns, adding primary keys) are only reported as comments.
+ */
+public class PostgresMigrationGenerator {
+	
+	// functions that are evaluated per row and as such require a rewrite of the table when used as default for a new column
+	private static Pattern VOLATILE_DEFAULT = Pattern.compile("(?i).*\\b(nextval|random|gen_random_uuid|uuid_generate_v[0-9]+|clock_timestamp|timeofday)[\\s]*\\(.*");
+	
+	private int batchSize = 10000;
+	// the amount of pages per batch when backfilling a table without a single column primary key
+	private int batchPages = 100;
+	private String lockTimeout = "5s";
+	// the backfill is a single statement, so rather than a statement timeout we stop as soon as one batch takes longer than this
+	private String batchTimeout = "1min";
+
+	public String buildMigrationSQL(Connection connection, ComplexType type) throws SQLException {
+		String tableName = EAIRepositoryUtils.uncamelify(PostgreSQL.getName(type.getProperties()));
+		
+		Map<String, Column> existingColumns = getColumns(connection, tableName);
+		// if the table does not exist yet, we can simply create it
+		if (existingColumns.isEmpty()) {
+			return new PostgreSQL().buildCreateSQL(type, false);
+		}
+		int serverVersion = getServerVersion(connection);
+		Set<String> indexedColumns = new HashSet<String>();
+		Set<String> uniqueColumns = new HashSet<String>();
+		List<String> invalidIndexes = new ArrayList<String>();
+		getIndexes(connection, tableName, serverVersion, indexedColumns, uniqueColumns, invalidIndexes);
+		Set<String> referencingColumns = getReferencingColumns(connection, tableName);
+		Map<String, Boolean> constraints = getConstraints(connection, tableName);
+		Column primaryKeyColumn = getPrimaryKey(connection, tableName);
+		
+		StringBuilder builder = new StringBuilder();
+		StringBuilder validations = new StringBuilder();
+		StringBuilder indexes = new StringBuilder();
+		appendStorage(builder, connection, type, tableName);
+		// a failed concurrent build leaves an invalid index behind which is not used for queries but is still maintained on every write
+		for (String invalidIndex : invalidIndexes) {
+			indexes.append("drop index concurrently if exists ").append(invalidIndex).append(";\n");
+		}
+		Set<String> columns = new HashSet<String>();
+		for (Element<?> child : JDBCUtils.getFieldsInTable(type)) {
+			String columnName = PostgreSQL.getColumnName(child);
+			columns.add(columnName);
+			
+			Value<Boolean> primaryKeyProperty = child.getProperty(PrimaryKeyProperty.getInstance());
+			boolean primaryKey = (primaryKeyProperty != null && primaryKeyProperty.getValue() != null && primaryKeyProperty.getValue()) || child.getName().equals("id");
+			Value<Boolean> generatedProperty = child.getProperty(GeneratedProperty.getInstance());
+			boolean generated = generatedProperty != null && generatedProperty.getValue() != null && generatedProperty.getValue();
+			Integer minOccurs = ValueUtils.getValue(MinOccursProperty.getInstance(), child.getProperties());
+			boolean mandatory = minOccurs == null || minOccurs > 0 || generated;
+			
+			Column existingColumn = existingColumns.get(columnName);
+			if (existingColumn == null) {
+				if (primaryKey) {
+					builder.append("-- the primary key column ").append(columnName).append(" can not be added online, this requires a manual migration\n");
+					continue;
+				}
+				// same defaults as when creating the table
+				String defaultValue = ValueUtils.getValue(DefaultValueProperty.getInstance(), child.getProperties());
+				if (defaultValue != null && defaultValue.trim().isEmpty()) {
+					defaultValue = null;
+				}
+				if (generated) {
+					String seqName = "seq_" + tableName + "_" + EAIRepositoryUtils.uncamelify(child.getName());
+					builder.append("create sequence if not exists ").append(seqName).append(";\n");
+					defaultValue = "nextval('" + seqName + "')";
+				}
+				else if (defaultValue == null && mandatory && child.getType() instanceof SimpleType && Boolean.class.isAssignableFrom(((SimpleType<?>) child.getType()).getInstanceClass())) {
+					defaultValue = "false";
+				}
+				
+				String columnType = PostgreSQL.getColumnType(child);
+				if (columnType == null) {
+					builder.append("-- the column ").append(columnName).append(" has no known database type, this requires a manual migration\n");
+					continue;
+				}
+				String add = "alter table " + tableName + " add column if not exists " + columnName + " " + columnType;
+				// a constant default is stored in the catalog, existing rows are not touched
+				if (defaultValue != null && !VOLATILE_DEFAULT.matcher(defaultValue).matches()) {
+					builder.append(add).append(" default ").append(defaultValue).append(mandatory ? " not null" : "").append(";\n");
+				}
+				else {
+					builder.append(add).append(";\n");
+					boolean filled = false;
+					if (defaultValue != null) {
+						// only applies to new rows
+						builder.append("alter table ").append(tableName).append(" alter column ").append(columnName).append(" set default ").append(defaultValue).append(";\n");
+						filled = appendBackfill(builder, tableName, columnName, primaryKeyColumn, serverVersion);
+					}
+					if (mandatory) {
+						appendNotNull(builder, validations, constraints, tableName, columnName, filled);
+					}
+				}
+			}
+			else {
+				String expectedType = PostgreSQL.getColumnType(child);
+				if (expectedType != null && !normalizeType(expectedType).equals(normalizeType(existingColumn.type))) {
+					builder.append("-- the column ").append(columnName).append(" is of type ").append(existingColumn.type)
+						.append(" but should be ").append(expectedType).append(", this requires a manual migration\n");
+				}
+				// the column exists but has become mandatory
+				if (mandatory && !primaryKey && existingColumn.nullable) {
+					appendNotNull(builder, validations, constraints, tableName, columnName, !hasNulls(connection, tableName, columnName));
+				}
+			}
+			
+			String reference = PostgreSQL.getReference(type, child);
+			if (reference != null) {
+				String constraintName = "fk_" + tableName + "_" + columnName;
+				// added in a previous run that did not get to the validation
+				if (constraints.containsKey(constraintName)) {
+					if (!constraints.get(constraintName)) {
+						validations.append("alter table ").append(tableName).append(" validate constraint ").append(constraintName).append(";\n");
+					}
+				}
+				else if (!referencingColumns.contains(columnName)) {
+					builder.append("alter table ").append(tableName).append(" add constraint ").append(constraintName)
+						.append(" foreign key (").append(columnName).append(") references ").append(reference).append(" not valid;\n");
+					validations.append("alter table ").append(tableName).append(" validate constraint ").append(constraintName).append(";\n");
+				}
+			}
+			
+			Value<Boolean> uniqueProperty = child.getProperty(UniqueProperty.getInstance());
+			if (uniqueProperty != null && uniqueProperty.getValue() != null && uniqueProperty.getValue() && !primaryKey && !uniqueColumns.contains(columnName)) {
+				indexes.append("create unique index concurrently if not exists uq_").append(tableName).append("_").append(columnName)
+					.append(" on ").append(tableName).append("(").append(columnName).append(");\n");
+			}
+			else {
+				Value<Boolean> indexedProperty = child.getProperty(IndexedProperty.getInstance());
+				if (indexedProperty != null && indexedProperty.getValue() != null && indexedProperty.getValue() && !indexedColumns.contains(columnName)) {
+					indexes.append("create index concurrently if not exists idx_").append(tableName).append("_").append(columnName)
+						.append(" on ").append(tableName).append("(").append(columnName).append(");\n");
+				}
+			}
+		}
+		for (String existingColumn : existingColumns.keySet()) {
+			if (!columns.contains(existingColumn)) {
+				builder.append("-- the column ").append(existingColumn).append(" is no longer in the type, it is not dropped automatically\n");
+			}
+		}
+		
+		if (builder.length() == 0 && validations.length() == 0 && indexes.length() == 0) {
+			return "";
+		}
+		// if we can't get the lock quickly, we fail rather than queueing all other traffic behind us
+		// the setting is reset at the end because the script is often run on a pooled connection
+		return "set lock_timeout = '" + lockTimeout + "';\n" + builder.toString() + validations.toString() + indexes.toString() + "reset lock_timeout;\n";
+	}
+	
+	// enforces not null without a full table scan under an exclusive lock
+	// the not valid constraint is immediately enforced for new rows but also for updates of existing rows, so it can only be added once all rows are filled in
+	private void appendNotNull(StringBuilder builder, StringBuilder validations, Map<String, Boolean> constraints, String tableName, String columnName, boolean filled) {
+		String constraintName = "nn_" + tableName + "_" + columnName;
+		if (filled) {
+			if (!constraints.containsKey(constraintName)) {
+				builder.append("alter table ").append(tableName).append(" add constraint ").append(constraintName)
+					.append(" check (").append(columnName).append(" is not null) not valid;\n");
+			}
+			validations.append("alter table ").append(tableName).append(" validate constraint ").append(constraintName).append(";\n");
+			validations.append("alter table ").append(tableName).append(" alter column ").append(columnName).append(" set not null;\n");
+			validations.append("alter table ").append(tableName).append(" drop constraint if exists ").append(constraintName).append(";\n");
+		}
+		// we have no way to fill in the existing rows
+		else {
+			validations.append("-- the mandatory column ").append(columnName).append(" has null values, fill in the existing rows and then run:\n");
+			if (!constraints.containsKey(constraintName)) {
+				validations.append("-- alter table ").append(tableName).append(" add constraint ").append(constraintName)
+					.append(" check (").append(columnName).append(" is not null) not valid;\n");
+			}
+			validations.append("-- alter table ").append(tableName).append(" validate constraint ").append(constraintName).append(";\n");
+			validations.append("-- alter table ").append(tableName).append(" alter column ").append(columnName).append(" set not null;\n");
+			validations.append("-- alter table ").append(tableName).append(" drop constraint if exists ").append(constraintName).append(";\n");
+		}
+	}
+	
+	// fills in the default for existing rows, committing after each batch so we never hold row locks on the entire table
+	// each batch only visits its own slice of the table, rescanning from the start would get slower with every batch
+	// row locks are bounded by the lock timeout of the session, the batch timeout stops the loop if batches become too slow
+	// returns false if the backfill could not be generated
+	private boolean appendBackfill(StringBuilder builder, String tableName, String columnName, Column primaryKey, int serverVersion) {
+		// walk the primary key index
+		if (primaryKey != null) {
+			String key = primaryKey.name;
+			builder.append("do $$\n")
+				.append("declare\n")
+				.append("\tlast_key ").append(primaryKey.type).append(";\n")
+				.append("\tnext_key ").append(primaryKey.type).append(";\n")
+				.append("\tstarted timestamp;\n")
+				.append("begin\n")
+				.append("\tloop\n")
+				.append("\t\tstarted := clock_timestamp();\n")
+				.append("\t\tif last_key is null then\n")
+				.append("\t\t\tselect max(").append(key).append(") into next_key from (select ").append(key).append(" from ").append(tableName)
+					.append(" order by ").append(key).append(" limit ").append(batchSize).append(") batch;\n")
+				.append("\t\t\tupdate ").append(tableName).append(" set ").append(columnName).append(" = default where ").append(key).append(" <= next_key and ")
+					.append(columnName).append(" is null;\n")
+				.append("\t\telse\n")
+				.append("\t\t\tselect max(").append(key).append(") into next_key from (select ").append(key).append(" from ").append(tableName)
+					.append(" where ").append(key).append(" > last_key order by ").append(key).append(" limit ").append(batchSize).append(") batch;\n")
+				.append("\t\t\tupdate ").append(tableName).append(" set ").append(columnName).append(" = default where ").append(key).append(" > last_key and ")
+					.append(key).append(" <= next_key and ").append(columnName).append(" is null;\n")
+				.append("\t\tend if;\n")
+				.append("\t\texit when next_key is null;\n")
+				.append("\t\tlast_key := next_key;\n");
+		}
+		// before postgresql 14 there is no tid range scan, every batch would scan the entire table
+		else if (serverVersion < 140000) {
+			builder.append("-- the table ").append(tableName).append(" has no single column primary key to backfill ").append(columnName).append(" in batches, this requires a manual backfill\n");
+			return false;
+		}
+		// walk the table in page ranges, this uses a tid range scan
+		else {
+			builder.append("do $$\n")
+				.append("declare\n")
+				.append("\tpages bigint := pg_relation_size('").append(tableName).append("') / current_setting('block_size')::integer;\n")
+				.append("\tcurrent_page bigint := 0;\n")
+				.append("\tstarted timestamp;\n")
+				.append("begin\n")
+				.append("\tloop\n")
+				.append("\t\texit when current_page > pages;\n")
+				.append("\t\tstarted := clock_timestamp();\n")
+				.append("\t\tupdate ").append(tableName).append(" set ").append(columnName).append(" = default where ctid >= format('(%s,0)', current_page)::tid and ctid < format('(%s,0)', current_page + ")
+					.append(batchPages).append(")::tid and ").append(columnName).append(" is null;\n")
+				.append("\t\tcurrent_page := current_page + ").append(batchPages).append(";\n");
+		}
+		builder.append("\t\tcommit;\n")
+			.append("\t\tif clock_timestamp() - started > interval '").append(batchTimeout).append("' then\n")
+			.append("\t\t\traise exception 'Backfill of ").append(tableName).append(".").append(columnName).append(" stopped, a batch took longer than ").append(batchTimeout).append("';\n")
+			.append("\t\tend if;\n")
+			.append("\tend loop;\n")
+			.append("end $$;\n");
+		return true;
+	}
+	
+	// the types as reported by postgresql are more verbose than the ones we generate
+	private static String normalizeType(String type) {
+		type = type.toLowerCase().trim();
+		String suffix = "";
+		while (type.endsWith("[]")) {
+			suffix += "[]";
+			type = type.substring(0, type.length() - 2).trim();
+		}
+		// ignore precision, length,...
+		type = type.replaceAll("[\\s]*\\([^)]*\\)", "");
+		if (type.equals("timestamp without time zone")) {
+			type = "timestamp";
+		}
+		else if (type.equals("time without time zone")) {
+			type = "time";
+		}
+		else if (type.equals("decimal")) {
+			type = "numeric";
+		}
+		return type + suffix;
+	}
+	
+	// the existing columns with their type and whether or not they are nullable
+	private Map<String, Column> getColumns(Connection connection, String tableName) throws SQLException {
+		Map<String, Column> columns = new LinkedHashMap<String, Column>();
+		PreparedStatement statement = connection.prepareStatement("select a.attname, not a.attnotnull, format_type(a.atttypid, a.atttypmod) from pg_attribute a"
+			+ " join pg_class c on c.oid = a.attrelid"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " where a.attnum > 0 and not a.attisdropped and n.nspname = current_schema() and c.relname = ? and c.relkind in ('r', 'p')"
+			+ " order by a.attnum");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			while (result.next()) {
+				columns.put(result.getString(1), new Column(result.getString(1), result.getString(3), result.getBoolean(2)));
+			}
+		}
+		finally {
+			statement.close();
+		}
+		return columns;
+	}
+	
+	// any valid index that starts with the column can be used, we don't need to add another one
+	// only invalid indexes that we generated ourselves are reported, and not if they are still being built by another session
+	private void getIndexes(Connection connection, String tableName, int serverVersion, Set<String> indexedColumns, Set<String> uniqueColumns, List<String> invalidIndexes) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("select a.attname, i.indisunique, i.indnatts, i.indisvalid, ic.relname, "
+			// the progress view only exists from postgresql 12 onwards
+			+ (serverVersion >= 120000 ? "exists (select 1 from pg_stat_progress_create_index p where p.index_relid = i.indexrelid)" : "false") + " from pg_index i"
+			+ " join pg_class ic on ic.oid = i.indexrelid"
+			+ " join pg_class c on c.oid = i.indrelid"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " left outer join pg_attribute a on a.attrelid = c.oid and a.attnum = i.indkey[0]"
+			+ " where n.nspname = current_schema() and c.relname = ?");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			while (result.next()) {
+				if (!result.getBoolean(4)) {
+					String indexName = result.getString(5);
+					if (!result.getBoolean(6) && (indexName.startsWith("idx_" + tableName + "_") || indexName.startsWith("uq_" + tableName + "_"))) {
+						invalidIndexes.add(indexName);
+					}
+				}
+				// expression indexes have no attribute
+				else if (result.getString(1) != null) {
+					indexedColumns.add(result.getString(1));
+					// only a unique index on exactly this column guarantees uniqueness of the column
+					if (result.getBoolean(2) && result.getInt(3) == 1) {
+						uniqueColumns.add(result.getString(1));
+					}
+				}
+			}
+		}
+		finally {
+			statement.close();
+		}
+	}
+	
+	private Set<String> getReferencingColumns(Connection connection, String tableName) throws SQLException {
+		Set<String> columns = new HashSet<String>();
+		PreparedStatement statement = connection.prepareStatement("select a.attname from pg_constraint co"
+			+ " join pg_class c on c.oid = co.conrelid"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " join pg_attribute a on a.attrelid = c.oid and a.attnum = co.conkey[1]"
+			+ " where co.contype = 'f' and n.nspname = current_schema() and c.relname = ?");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			while (result.next()) {
+				columns.add(result.getString(1));
+			}
+		}
+		finally {
+			statement.close();
+		}
+		return columns;
+	}
+	
+	// the names of the existing constraints and whether or not they have been validated
+	private Map<String, Boolean> getConstraints(Connection connection, String tableName) throws SQLException {
+		Map<String, Boolean> constraints = new HashMap<String, Boolean>();
+		PreparedStatement statement = connection.prepareStatement("select co.conname, co.convalidated from pg_constraint co"
+			+ " join pg_class c on c.oid = co.conrelid"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " where n.nspname = current_schema() and c.relname = ?");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			while (result.next()) {
+				constraints.put(result.getString(1), result.getBoolean(2));
+			}
+		}
+		finally {
+			statement.close();
+		}
+		return constraints;
+	}
+	
+	// the primary key if it consists of a single column, null otherwise
+	private Column getPrimaryKey(Connection connection, String tableName) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("select a.attname, format_type(a.atttypid, a.atttypmod) from pg_constraint co"
+			+ " join pg_class c on c.oid = co.conrelid"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " join pg_attribute a on a.attrelid = c.oid and a.attnum = co.conkey[1]"
+			+ " where co.contype = 'p' and array_length(co.conkey, 1) = 1 and n.nspname = current_schema() and c.relname = ?");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			return result.next() ? new Column(result.getString(1), result.getString(2), false) : null;
+		}
+		finally {
+			statement.close();
+		}
+	}
+	
+	// storage parameters can be changed without rewriting the table, the tablespace and the logging can not
+	private void appendStorage(StringBuilder builder, Connection connection, ComplexType type, String tableName) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("select c.relpersistence, c.reloptions, t.spcname from pg_class c"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " left outer join pg_tablespace t on t.oid = c.reltablespace"
+			+ " where n.nspname = current_schema() and c.relname = ? and c.relkind in ('r', 'p')");
+		try {
+			statement.setString(1, tableName);
+			ResultSet result = statement.executeQuery();
+			if (!result.next()) {
+				return;
+			}
+			Boolean unlogged = ValueUtils.getValue(PostgresUnloggedProperty.getInstance(), type.getProperties());
+			boolean isUnlogged = "u".equals(result.getString(1));
+			if ((unlogged != null && unlogged) != isUnlogged) {
+				builder.append("-- the table ").append(tableName).append(" is ").append(isUnlogged ? "unlogged" : "logged")
+					.append(" but should be ").append(isUnlogged ? "logged" : "unlogged").append(", changing this rewrites the table and requires a manual migration\n");
+			}
+			Map<String, String> existing = new HashMap<String, String>();
+			Array options = result.getArray(2);
+			if (options != null) {
+				for (String option : (String[]) options.getArray()) {
+					int index = option.indexOf('=');
+					existing.put(option.substring(0, index < 0 ? option.length() : index).toLowerCase(), index < 0 ? null : option.substring(index + 1));
+				}
+			}
+			StringBuilder parameters = new StringBuilder();
+			for (Map.Entry<String, String> parameter : PostgreSQL.getStorageParameterMap(type).entrySet()) {
+				if (!existing.containsKey(parameter.getKey()) || (parameter.getValue() != null && !parameter.getValue().equals(existing.get(parameter.getKey())))) {
+					parameters.append(parameters.length() == 0 ? "" : ", ").append(parameter.getKey());
+					if (parameter.getValue() != null) {
+						parameters.append("=").append(parameter.getValue());
+					}
+				}
+			}
+			// this only takes a short lived lock, existing pages are not rewritten
+			if (parameters.length() > 0) {
+				builder.append("alter table ").append(tableName).append(" set (").append(parameters).append(");\n");
+			}
+			String tablespace = ValueUtils.getValue(PostgresTablespaceProperty.getInstance(), type.getProperties());
+			if (tablespace != null && !tablespace.trim().isEmpty() && !tablespace.trim().equals(result.getString(3))) {
+				builder.append("-- the table ").append(tableName).append(" should be in tablespace ").append(tablespace.trim())
+					.append(", moving it rewrites the table and requires a manual migration\n");
+			}
+		}
+		finally {
+			statement.close();
+		}
+	}
+	
+	// checks if there is at least one row with a null value for the column
+	private boolean hasNulls(Connection connection, String tableName, String columnName) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("select 1 from " + tableName + " where " + columnName + " is null limit 1");
+		try {
+			return statement.executeQuery().next();
+		}
+		finally {
+			statement.close();
+		}
+	}
+	
+	private int getServerVersion(Connection connection) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement("select current_setting('server_version_num')::integer");
+		try {
+			ResultSet result = statement.executeQuery();
+			result.next();
+			return result.getInt(1);
+		}
+		finally {
+			statement.close();
+		}
+	}
+	
+	private static class Column {
+		private String name, type;
+		private boolean nullable;
+		
+		public Column(String name, String type, boolean nullable) {
+			this.name = name;
+			this.type = type;
+			this.nullable = nullable;
+		}
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchPages() {
+		return batchPages;
+	}
+	public void setBatchPages(int batchPages) {
+		this.batchPages = batchPages;
+	}
+
+	public String getLockTimeout() {
+		return lockTimeout;
+	}
+	public void setLockTimeout(String lockTimeout) {
+		this.lockTimeout = lockTimeout;
+	}
+
+	public String getBatchTimeout() {
+		return batchTimeout;
+	}
+	public void setBatchTimeout(String batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+	
+}
@@ -20,11 +20,14 @@ package be.nabu.eai.module.jdbc.dialects;
 import be.nabu.libs.types.api.annotation.ComplexTypeDescriptor;
 import be.nabu.libs.types.api.annotation.Field;
 
-@ComplexTypeDescriptor(propOrder = { "host", "port", "database", "username", "password" })
+@ComplexTypeDescriptor(propOrder = { "host", "port", "database", "username", "password", "warmup", "warmupBudget", "warmupStatements" })
 public class PostgresParameters {
 	private String host, database;
 	private Integer port;
 	private String username, password;
+	private Boolean warmup;
+	private Long warmupBudget;
+	private Integer warmupStatements;
 	
 	@Field(defaultValue = "localhost")
 	public String getHost() {
@@ -64,5 +67,29 @@ public class PostgresParameters {
 	public void setDatabase(String database) {
 		this.database = database;
 	}
+	
+	// warm up every new connection with the type metadata and the most frequently used statements
+	public Boolean getWarmup() {
+		return warmup;
+	}
+	public void setWarmup(Boolean warmup) {
+		this.warmup = warmup;
+	}
+	
+	@Field(defaultValue = "2000")
+	public Long getWarmupBudget() {
+		return warmupBudget;
+	}
+	public void setWarmupBudget(Long warmupBudget) {
+		this.warmupBudget = warmupBudget;
+	}
+	
+	@Field(defaultValue = "50")
+	public Integer getWarmupStatements() {
+		return warmupStatements;
+	}
+	public void setWarmupStatements(Integer warmupStatements) {
+		this.warmupStatements = warmupStatements;
+	}
 
 }
@@ -0,0 +1,42 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.eai.module.jdbc.dialects;
+
+import be.nabu.libs.types.properties.SimpleProperty;
+
+/**
+ * Any additional storage parameters in the form "key=value, key=value", they are added as is to the "with" clause.
+ */
+public class PostgresStorageParametersProperty extends SimpleProperty<String> {
+
+	private static PostgresStorageParametersProperty instance = new PostgresStorageParametersProperty();
+	
+	public static PostgresStorageParametersProperty getInstance() {
+		return instance;
+	}
+	
+	public PostgresStorageParametersProperty() {
+		super(String.class);
+	}
+	
+	@Override
+	public String getName() {
+		return "postgresStorageParameters";
+	}
+
+}
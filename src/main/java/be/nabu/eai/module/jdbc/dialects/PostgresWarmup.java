@@ -0,0 +1,498 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.eai.module.jdbc.dialects;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.CachedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.nabu.eai.repository.EAIResourceRepository;
+import be.nabu.eai.repository.api.Entry;
+import be.nabu.eai.repository.api.ResourceEntry;
+import be.nabu.libs.resources.api.ManageableContainer;
+import be.nabu.libs.resources.api.ReadableResource;
+import be.nabu.libs.resources.api.Resource;
+import be.nabu.libs.resources.api.ResourceContainer;
+import be.nabu.libs.resources.api.WritableResource;
+import be.nabu.utils.io.IOUtils;
+
+/**
+ * Keeps track of the most frequently prepared statements for a database and uses them to warm up new connections.
+ * 
+ * The type metadata that the dialect relies on is preloaded and the most frequent statements are parsed and described on the server.
+ * This warms up the catalog caches of the new backend for the tables involved, the statements themselves are not executed.
+ * Their execution count in the statement cache of the driver is also raised to the prepare threshold, so the very first execution on the new connection already uses a named server side statement.
+ * 
+ * The statistics decay over time so the warmup follows the current traffic.
+ * They are persisted periodically next to the pool artifact, the system property "postgresql.warmup.folder" can be used to store them elsewhere.
+ */
+public class PostgresWarmup {
+	
+	// the types that we add explicit casts for in the dialect
+	private static final String [] TYPES = new String [] { "uuid", "_uuid", "interval", "_interval", "timestamp", "_timestamp", "date", "time", "bool", "_bool", "text", "_text", "int4", "_int4", "int8", "_int8", "numeric", "_numeric" };
+	// the amount of statements we keep after each maintenance run, in between runs we allow up to twice as much
+	private static final int MAX_TRACKED = 1000;
+	// the amount of statements we persist
+	private static final int MAX_PERSISTED = 250;
+	// how often (in minutes) we decay the statistics, persist them and log a summary
+	private static final long MAINTENANCE_INTERVAL = 5;
+	// how long (in minutes) an instance can go unused before it is released, for example because the pool was stopped
+	private static final long IDLE_TIMEOUT = 60;
+	private static final String FILE_NAME = "warmup.properties";
+	
+	// the network timeout is enforced by the driver itself, the executor is never used to run anything substantial
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+	
+	private static Map<String, PostgresWarmup> instances = new ConcurrentHashMap<String, PostgresWarmup>();
+	private static ScheduledExecutorService scheduler;
+	private static Thread shutdownHook;
+	
+	private Logger logger = LoggerFactory.getLogger(getClass());
+	private Map<String, AtomicLong> counts = new ConcurrentHashMap<String, AtomicLong>();
+	private String name;
+	// either a file or a container of the repository
+	private File file;
+	private ResourceContainer<?> container;
+	private volatile long lastUsed = System.currentTimeMillis();
+	// set when a warmup had to be aborted by the network timeout, until the next maintenance run we don't contact the server
+	private volatile boolean suspended;
+	
+	private AtomicLong warmedConnections = new AtomicLong(), warmedStatements = new AtomicLong(), failedStatements = new AtomicLong(), 
+		budgetExceeded = new AtomicLong(), warmupTime = new AtomicLong();
+	private long lastLoggedConnections;
+	
+	/**
+	 * The pool id is optional, without it the statistics can only be stored if a folder is configured.
+	 */
+	public static synchronized PostgresWarmup getInstance(String url, String username, String poolId) {
+		String key = url + ";" + username;
+		PostgresWarmup warmup = instances.get(key);
+		if (warmup == null) {
+			// don't log any parameters of the url
+			warmup = new PostgresWarmup(url.replaceAll("\\?.*$", ""), key, poolId);
+			instances.put(key, warmup);
+		}
+		// a single maintenance task and shutdown hook for all the instances, they are stopped when there are no instances left
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "postgresql-warmup");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					maintainAll();
+				}
+			}, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL, TimeUnit.MINUTES);
+			shutdownHook = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (PostgresWarmup instance : instances.values()) {
+						instance.save();
+					}
+				}
+			});
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+		}
+		warmup.lastUsed = System.currentTimeMillis();
+		return warmup;
+	}
+	
+	private static synchronized void maintainAll() {
+		Iterator<PostgresWarmup> iterator = instances.values().iterator();
+		while (iterator.hasNext()) {
+			PostgresWarmup instance = iterator.next();
+			instance.maintain();
+			if (System.currentTimeMillis() - instance.lastUsed > TimeUnit.MINUTES.toMillis(IDLE_TIMEOUT)) {
+				iterator.remove();
+			}
+		}
+		// nothing left to do, release the thread and the hook so nothing keeps this class loaded
+		if (instances.isEmpty()) {
+			scheduler.shutdown();
+			scheduler = null;
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}
+			catch (IllegalStateException e) {
+				// already shutting down
+			}
+			shutdownHook = null;
+		}
+	}
+	
+	PostgresWarmup(String name, String key, String poolId) {
+		this.name = name;
+		String folder = System.getProperty("postgresql.warmup.folder");
+		if (folder != null) {
+			file = new File(folder, "warmup-" + UUID.nameUUIDFromBytes(key.getBytes(Charset.forName("UTF-8"))) + ".properties");
+		}
+		else if (poolId != null) {
+			Entry entry = EAIResourceRepository.getInstance().getEntry(poolId);
+			if (entry instanceof ResourceEntry) {
+				container = ((ResourceEntry) entry).getContainer();
+			}
+		}
+		if (file == null && container == null) {
+			logger.warn("No location to persist the warmup statistics of " + name + ", they will not survive a restart");
+		}
+		load();
+	}
+	
+	// wraps the connection so we can keep track of the statements that are prepared on it
+	public Connection record(final Connection connection) {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("prepareStatement") && args != null && args.length > 0 && args[0] instanceof String) {
+					record((String) args[0]);
+				}
+				else if (method.getName().equals("equals") && args != null && args.length == 1) {
+					return proxy == args[0];
+				}
+				else if (method.getName().equals("hashCode") && args == null) {
+					return System.identityHashCode(proxy);
+				}
+				try {
+					return method.invoke(connection, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+	
+	public void record(String sql) {
+		lastUsed = System.currentTimeMillis();
+		AtomicLong count = counts.get(sql);
+		if (count == null) {
+			// new statements are always accepted, the least used ones make room
+			if (counts.size() >= MAX_TRACKED * 2) {
+				trim();
+			}
+			counts.putIfAbsent(sql, new AtomicLong());
+			count = counts.get(sql);
+		}
+		// can be null if it was trimmed in the meantime
+		if (count != null) {
+			count.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Warms up the connection, every roundtrip to the server is bounded by the remaining budget through the network timeout.
+	 * If that timeout is hit, the driver closes the connection.
+	 */
+	public void warmup(Connection connection, long budget, int amount) {
+		long started = System.currentTimeMillis();
+		int warmed = 0;
+		if (suspended) {
+			logger.debug("Warmup of " + name + " is suspended until the next maintenance run");
+			return;
+		}
+		try {
+			BaseConnection baseConnection = connection.unwrap(BaseConnection.class);
+			int originalTimeout = connection.getNetworkTimeout();
+			try {
+				// the type info is cached per connection, resolving them now means the first statements don't need a roundtrip to look up the oid
+				for (String type : TYPES) {
+					if (!setRemainingTimeout(connection, started, budget)) {
+						break;
+					}
+					baseConnection.getTypeInfo().getPGType(type);
+				}
+				// when it is 0, server side prepared statements are disabled
+				int threshold = baseConnection.getPrepareThreshold();
+				for (String sql : getMostFrequent(amount)) {
+					if (!setRemainingTimeout(connection, started, budget)) {
+						break;
+					}
+					try {
+						PreparedStatement statement = connection.prepareStatement(sql);
+						try {
+							// this sends a parse and describe to the server which loads the metadata of the tables involved, the statement is not executed
+							statement.getParameterMetaData();
+						}
+						finally {
+							// this puts the parsed query in the statement cache of the driver
+							statement.close();
+						}
+						warmed++;
+						if (threshold > 0) {
+							CachedQuery query = baseConnection.borrowQuery(sql);
+							try {
+								if (query.getExecuteCount() < threshold) {
+									query.increaseExecuteCount(threshold - query.getExecuteCount());
+								}
+							}
+							finally {
+								baseConnection.releaseQuery(query);
+							}
+						}
+					}
+					catch (SQLException e) {
+						// the statement may no longer be valid, for example because the table was changed
+						failedStatements.incrementAndGet();
+						logger.debug("Could not warm up statement: " + sql, e);
+						if (connection.isClosed()) {
+							break;
+						}
+					}
+				}
+				if (!connection.isClosed() && !connection.getAutoCommit()) {
+					connection.rollback();
+				}
+			}
+			finally {
+				if (!connection.isClosed()) {
+					connection.setNetworkTimeout(DIRECT, originalTimeout);
+				}
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Could not warm up connection", e);
+		}
+		finally {
+			long duration = System.currentTimeMillis() - started;
+			if (duration > budget) {
+				budgetExceeded.incrementAndGet();
+				logger.debug("Warmup budget of " + budget + "ms exceeded after warming up " + warmed + " statements");
+			}
+			try {
+				if (connection.isClosed()) {
+					suspended = true;
+					logger.warn("Warmup of " + name + " was aborted by its budget of " + budget + "ms, it is suspended until the next maintenance run");
+				}
+			}
+			catch (SQLException e) {
+				// ignore
+			}
+			warmedConnections.incrementAndGet();
+			warmedStatements.addAndGet(warmed);
+			warmupTime.addAndGet(duration);
+			logger.debug("Warmed up connection with " + warmed + " statements in " + duration + "ms");
+		}
+	}
+	
+	// returns false if there is no budget left
+	private boolean setRemainingTimeout(Connection connection, long started, long budget) throws SQLException {
+		long remaining = budget - (System.currentTimeMillis() - started);
+		if (remaining <= 0) {
+			return false;
+		}
+		connection.setNetworkTimeout(DIRECT, (int) Math.min(Integer.MAX_VALUE, remaining));
+		return true;
+	}
+	
+	private List<Map.Entry<String, AtomicLong>> getSortedEntries() {
+		List<Map.Entry<String, AtomicLong>> entries = new ArrayList<Map.Entry<String, AtomicLong>>(counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, AtomicLong>>() {
+			@Override
+			public int compare(Map.Entry<String, AtomicLong> o1, Map.Entry<String, AtomicLong> o2) {
+				return Long.compare(o2.getValue().get(), o1.getValue().get());
+			}
+		});
+		return entries;
+	}
+	
+	private List<String> getMostFrequent(int amount) {
+		List<Map.Entry<String, AtomicLong>> entries = getSortedEntries();
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < Math.min(amount, entries.size()); i++) {
+			result.add(entries.get(i).getKey());
+		}
+		return result;
+	}
+	
+	// drops the least used statements
+	private synchronized void trim() {
+		if (counts.size() > MAX_TRACKED) {
+			List<Map.Entry<String, AtomicLong>> entries = getSortedEntries();
+			for (int i = MAX_TRACKED; i < entries.size(); i++) {
+				counts.remove(entries.get(i).getKey());
+			}
+		}
+	}
+	
+	// halves all the counts so statements that are no longer used make way for the current ones
+	private void decay() {
+		for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+			long value = entry.getValue().updateAndGet(new LongUnaryOperator() {
+				@Override
+				public long applyAsLong(long operand) {
+					return operand / 2;
+				}
+			});
+			if (value == 0) {
+				counts.remove(entry.getKey());
+			}
+		}
+	}
+	
+	void maintain() {
+		try {
+			save();
+			decay();
+			trim();
+			suspended = false;
+			long connections = warmedConnections.get();
+			if (connections != lastLoggedConnections) {
+				logger.info("Warmup of " + name + ": " + connections + " connections warmed in " + warmupTime.get() + "ms total, " + warmedStatements.get() + " statements warmed, " 
+					+ failedStatements.get() + " failed, budget exceeded " + budgetExceeded.get() + " times, " + counts.size() + " statements tracked");
+				lastLoggedConnections = connections;
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Could not maintain the warmup statistics of " + name, e);
+		}
+	}
+	
+	private void load() {
+		try {
+			InputStream input = null;
+			if (file != null && file.exists()) {
+				input = new FileInputStream(file);
+			}
+			else if (container != null) {
+				Resource child = container.getChild(FILE_NAME);
+				if (child instanceof ReadableResource) {
+					input = IOUtils.toInputStream(((ReadableResource) child).getReadable());
+				}
+			}
+			if (input != null) {
+				Properties properties = new Properties();
+				try {
+					properties.load(input);
+				}
+				finally {
+					input.close();
+				}
+				for (String sql : properties.stringPropertyNames()) {
+					counts.put(sql, new AtomicLong(Long.parseLong(properties.getProperty(sql))));
+				}
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Could not load warmup statements of " + name, e);
+		}
+	}
+	
+	synchronized void save() {
+		if (file == null && container == null) {
+			return;
+		}
+		Properties properties = new Properties();
+		for (Map.Entry<String, AtomicLong> entry : getSortedEntries()) {
+			if (properties.size() >= MAX_PERSISTED) {
+				break;
+			}
+			properties.setProperty(entry.getKey(), Long.toString(entry.getValue().get()));
+		}
+		try {
+			OutputStream output;
+			if (file != null) {
+				if (!file.getParentFile().exists()) {
+					file.getParentFile().mkdirs();
+				}
+				if (!file.exists()) {
+					file.createNewFile();
+					// the file contains the sql of the application, only the owner can read it
+					file.setReadable(false, false);
+					file.setReadable(true, true);
+					file.setWritable(false, false);
+					file.setWritable(true, true);
+				}
+				output = new FileOutputStream(file);
+			}
+			else {
+				Resource child = container.getChild(FILE_NAME);
+				if (child == null) {
+					child = ((ManageableContainer<?>) container).create(FILE_NAME, "text/plain");
+				}
+				output = IOUtils.toOutputStream(((WritableResource) child).getWritable());
+			}
+			try {
+				properties.store(output, "Most frequently prepared statements");
+			}
+			finally {
+				output.close();
+			}
+		}
+		catch (Exception e) {
+			logger.warn("Could not persist warmup statements of " + name, e);
+		}
+	}
+
+	public long getWarmedConnections() {
+		return warmedConnections.get();
+	}
+	public long getWarmedStatements() {
+		return warmedStatements.get();
+	}
+	public long getFailedStatements() {
+		return failedStatements.get();
+	}
+	public long getBudgetExceeded() {
+		return budgetExceeded.get();
+	}
+	public long getWarmupTime() {
+		return warmupTime.get();
+	}
+	
+}
@@ -0,0 +1,130 @@
+/*
+* Copyright (C) 2016 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.eai.module.jdbc.dialects;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+
+/**
+ * Delegates to the postgresql driver but warms up every new connection before it is handed to the pool.
+ * The pool creates connections on its own threads, so this happens in the background from the point of view of the requests.
+ * The warmup itself is bounded by the budget, see {@link PostgresWarmup}.
+ * It is configured through additional parameters in the jdbc url which are stripped before they reach the actual driver:
+ * 
+ * - warmupBudget: the maximum amount of milliseconds to spend on warming up a single connection
+ * - warmupStatements: the maximum amount of statements to warm up
+ * - warmupPool: the id of the pool, the statistics are stored next to it
+ */
+public class PostgresWarmupDriver implements Driver {
+
+	public static final String BUDGET = "warmupBudget";
+	public static final String STATEMENTS = "warmupStatements";
+	public static final String POOL = "warmupPool";
+	
+	private Driver driver = new org.postgresql.Driver();
+	
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		long budget = 2000;
+		int statements = 50;
+		String poolId = null;
+		StringBuilder stripped = new StringBuilder();
+		int index = url.indexOf('?');
+		if (index >= 0) {
+			for (String parameter : url.substring(index + 1).split("&")) {
+				if (parameter.startsWith(BUDGET + "=")) {
+					budget = getNumber(parameter, BUDGET);
+				}
+				else if (parameter.startsWith(STATEMENTS + "=")) {
+					statements = (int) getNumber(parameter, STATEMENTS);
+				}
+				else if (parameter.startsWith(POOL + "=")) {
+					poolId = parameter.substring(POOL.length() + 1);
+				}
+				else if (!parameter.isEmpty()) {
+					stripped.append(stripped.length() == 0 ? "?" : "&").append(parameter);
+				}
+			}
+			url = url.substring(0, index) + stripped.toString();
+		}
+		Connection connection = driver.connect(url, info);
+		if (connection == null) {
+			return null;
+		}
+		PostgresWarmup warmup = PostgresWarmup.getInstance(url, info == null ? null : info.getProperty("user"), poolId);
+		if (statements > 0 && budget > 0) {
+			warmup.warmup(connection, budget, statements);
+			// if the network timeout was hit, the driver has closed the connection, we don't want to hand that to the pool
+			// the warmup is suspended for a while when that happens, so this slow path is not taken for every new connection
+			if (connection.isClosed()) {
+				connection = driver.connect(url, info);
+				if (connection == null) {
+					return null;
+				}
+			}
+		}
+		return warmup.record(connection);
+	}
+
+	private static long getNumber(String parameter, String name) throws SQLException {
+		try {
+			return Long.parseLong(parameter.substring(name.length() + 1));
+		}
+		catch (NumberFormatException e) {
+			throw new SQLException("Invalid value for the jdbc url parameter '" + name + "': " + parameter.substring(name.length() + 1), e);
+		}
+	}
+	
+	@Override
+	public boolean acceptsURL(String url) throws SQLException {
+		return driver.acceptsURL(url);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+		return driver.getPropertyInfo(url, info);
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return driver.getMajorVersion();
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return driver.getMinorVersion();
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return driver.jdbcCompliant();
+	}
+
+	@Override
+	public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return driver.getParentLogger();
+	}
+
+}
@@ -55,6 +55,19 @@ public class PostgresWizard implements JDBCPoolWizard<PostgresParameters> {
 				parameters.setDatabase(uri.getPath().replaceAll("^[/]+", ""));
 				parameters.setUsername(pool.getConfig().getUsername());
 				parameters.setPassword(pool.getConfig().getPassword());
+				if (PostgresWarmupDriver.class.getName().equals(pool.getConfig().getDriverClassName())) {
+					parameters.setWarmup(true);
+					if (uri.getQuery() != null) {
+						for (String parameter : uri.getQuery().split("&")) {
+							if (parameter.startsWith(PostgresWarmupDriver.BUDGET + "=")) {
+								parameters.setWarmupBudget(Long.parseLong(parameter.substring(PostgresWarmupDriver.BUDGET.length() + 1)));
+							}
+							else if (parameter.startsWith(PostgresWarmupDriver.STATEMENTS + "=")) {
+								parameters.setWarmupStatements(Integer.parseInt(parameter.substring(PostgresWarmupDriver.STATEMENTS.length() + 1)));
+							}
+						}
+					}
+				}
 				return parameters;
 			}
 			catch (Exception e) {
@@ -72,10 +85,18 @@ public class PostgresWizard implements JDBCPoolWizard<PostgresParameters> {
 			if (isNew) {
 				existing.getConfig().setAutoCommit(false);
 			}
-			existing.getConfig().setJdbcUrl("jdbc:postgresql://" + (properties.getHost() == null ? "localhost" : properties.getHost()) + ":" + (properties.getPort() == null ? 5432 : properties.getPort()) + "/" + (properties.getDatabase() == null ? "postgres" : properties.getDatabase()));
+			String jdbcUrl = "jdbc:postgresql://" + (properties.getHost() == null ? "localhost" : properties.getHost()) + ":" + (properties.getPort() == null ? 5432 : properties.getPort()) + "/" + (properties.getDatabase() == null ? "postgres" : properties.getDatabase());
+			boolean warmup = properties.getWarmup() != null && properties.getWarmup();
+			// the warmup driver picks up its configuration from the url
+			if (warmup) {
+				jdbcUrl += "?" + PostgresWarmupDriver.BUDGET + "=" + (properties.getWarmupBudget() == null ? 2000 : properties.getWarmupBudget())
+					+ "&" + PostgresWarmupDriver.STATEMENTS + "=" + (properties.getWarmupStatements() == null ? 50 : properties.getWarmupStatements())
+					+ "&" + PostgresWarmupDriver.POOL + "=" + entry.getId();
+			}
+			existing.getConfig().setJdbcUrl(jdbcUrl);
 			Class clazz = PostgreSQL.class;
 			existing.getConfig().setDialect(clazz);
-			existing.getConfig().setDriverClassName("org.postgresql.Driver");
+			existing.getConfig().setDriverClassName(warmup ? PostgresWarmupDriver.class.getName() : "org.postgresql.Driver");
 			existing.getConfig().setUsername(properties.getUsername());
 			existing.getConfig().setPassword(properties.getPassword());
 			return existing;